@@ -0,0 +1,125 @@
+package org.fifthgen.messages;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queueing delay and admission counters for a single priority class of the {@link StepScheduler}, covering
+ * message dispatch only. Deferred steps are counted once when they are deferred, and again as dispatched,
+ * expired or shed. Shed steps are the ones dropped on submission or by shutting the scheduler down. Percentiles
+ * are calculated over a window of the most recent samples.
+ */
+public class DispatchMetrics {
+
+    private static final int WINDOW_SIZE = 1024;
+
+    private final StepPriority priority;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong totalDelayMillis = new AtomicLong();
+    private final AtomicLong maxDelayMillis = new AtomicLong();
+    private final long[] window = new long[WINDOW_SIZE];
+    private int windowIndex = 0;
+    private int windowCount = 0;
+
+    public DispatchMetrics(StepPriority priority) {
+        this.priority = priority;
+    }
+
+    public StepPriority getPriority() {
+        return priority;
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    public long getDeferred() {
+        return deferred.get();
+    }
+
+    public long getShed() {
+        return shed.get();
+    }
+
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis.get();
+    }
+
+    public double getAverageDelayMillis() {
+        long count = dispatched.get();
+
+        return count == 0 ? 0 : (double) totalDelayMillis.get() / count;
+    }
+
+    void recordSubmitted() {
+        submitted.incrementAndGet();
+    }
+
+    void recordDeferred() {
+        deferred.incrementAndGet();
+    }
+
+    void recordShed() {
+        shed.incrementAndGet();
+    }
+
+    void recordExpired() {
+        expired.incrementAndGet();
+    }
+
+    void recordDispatched(long delayMillis) {
+        dispatched.incrementAndGet();
+        totalDelayMillis.addAndGet(delayMillis);
+        maxDelayMillis.accumulateAndGet(delayMillis, Math::max);
+
+        synchronized (window) {
+            window[windowIndex] = delayMillis;
+            windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+            windowCount = Math.min(windowCount + 1, WINDOW_SIZE);
+        }
+    }
+
+    /**
+     * Queueing delay percentile over the recent sample window.
+     *
+     * @param percentile Percentile to calculate, between 0 and 100
+     * @return Delay in milliseconds, 0 if no steps have been dispatched yet
+     */
+    public long getDelayPercentileMillis(double percentile) {
+        long[] samples;
+
+        synchronized (window) {
+            samples = Arrays.copyOf(window, windowCount);
+        }
+
+        if (samples.length == 0) {
+            return 0;
+        }
+
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(percentile / 100 * samples.length) - 1;
+
+        return samples[Math.max(0, Math.min(rank, samples.length - 1))];
+    }
+
+    @Override
+    public String toString() {
+        return priority + ": submitted=" + getSubmitted() + ", dispatched=" + getDispatched()
+                + ", deferred=" + getDeferred() + ", shed=" + getShed() + ", expired=" + getExpired()
+                + ", avgDelay=" + String.format("%.1f", getAverageDelayMillis()) + "ms"
+                + ", p99Delay=" + getDelayPercentileMillis(99) + "ms"
+                + ", maxDelay=" + getMaxDelayMillis() + "ms";
+    }
+}
@@ -0,0 +1,11 @@
+package org.fifthgen.messages;
+
+/**
+ * What the {@link StepScheduler} does with a step when the queue of its priority class is full.
+ */
+public enum OverflowPolicy {
+    // Drop the step and notify the submitter
+    SHED,
+    // Hold the step in a bounded queue till a slot frees up, dropping it if it expires while waiting
+    DEFER
+}
@@ -4,8 +4,7 @@ import org.fifthgen.messages.server.ServerApplication;
 import org.fifthgen.messages.server.ServerClient;
 
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
 
 public class ServiceTestImpl {
     protected final int PORT = 1212;
@@ -36,12 +35,15 @@ public class ServiceTestImpl {
 
     protected Set<Track> tracks = new HashSet<>();
 
-    protected ExecutorService executorService = Executors.newFixedThreadPool(10);
+    protected StepScheduler scheduler = new StepScheduler(10);
 
     protected ServerApplication server;
 
     protected int trackCnt = 0;
 
+    // Counted down once per user when the last track of their chain has ended
+    protected CountDownLatch chainLatch = new CountDownLatch(0);
+
     private void init() {
         System.out.println("Starting server ...");
         server = new ServerApplication(PORT);
@@ -68,12 +70,17 @@ public class ServiceTestImpl {
             return;
         }
 
+        chainLatch = new CountDownLatch(users.size());
+        TrackCompletionListener completionListener = track -> chainLatch.countDown();
+
         for (var key : users.keySet()) {
             // -------------------------------------
             // Set up first track, contacting users.
             // -------------------------------------
-            Track initTrack = new Track(++trackCnt, server);
+            Track initTrack = new Track(++trackCnt, server, scheduler);
             initTrack.setClientRef(key);
+            initTrack.setCompletionListener(completionListener);
+            initTrack.setPriority(StepPriority.BULK);
             initTrack.setValidator(response -> true);
             initTrack.setResponseCallback(response -> userEmails.put(response.getId(), response.getMessage()));
 
@@ -91,8 +98,10 @@ public class ServiceTestImpl {
             // ------------------------------------------------
             // Set up second track which schedules an interview
             // ------------------------------------------------
-            Track interviewTrack = new Track(++trackCnt, server);
+            Track interviewTrack = new Track(++trackCnt, server, scheduler);
             interviewTrack.setClientRef(key);
+            interviewTrack.setCompletionListener(completionListener);
+            interviewTrack.setPriority(StepPriority.NORMAL);
             interviewTrack.setValidator(response -> true);
             interviewTrack.setResponseCallback(response -> userInterviewSchedules.put(response.getId(),
                     response.getMessage()));
@@ -112,8 +121,10 @@ public class ServiceTestImpl {
             // ------------------------------------------------
             // Set up confirmation track
             // ------------------------------------------------
-            Track confirmationTrack = new Track(++trackCnt, server);
+            Track confirmationTrack = new Track(++trackCnt, server, scheduler);
             confirmationTrack.setClientRef(key);
+            confirmationTrack.setCompletionListener(completionListener);
+            confirmationTrack.setPriority(StepPriority.CRITICAL);
             confirmationTrack.setDependsOnPrevTrack(true);
             confirmationTrack.setValidator(response -> true);
             confirmationTrack.setResponseCallback(new TrackResponseCallBackWithOnStart() {
@@ -142,14 +153,21 @@ public class ServiceTestImpl {
 
     void run() {
         init();
-        tracks.forEach(track -> executorService.execute(track));
+        // Tracks only queue their first step on the scheduler, so they can be started from this thread
+        tracks.forEach(Track::run);
 
-        // TODO: Add a countdown latch and remove the following block
+        // Wait for every track chain to end before shutting the scheduler down
         try {
-            Thread.sleep(360000);
+            chainLatch.await();
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
+
+        for (StepPriority priority : StepPriority.values()) {
+            System.out.println(scheduler.getMetrics(priority));
+        }
+
+        scheduler.shutdown();
     }
 
     public static void main(String[] args) {
@@ -2,6 +2,7 @@ package org.fifthgen.messages;
 
 import lombok.*;
 
+import java.time.Duration;
 import java.time.Instant;
 
 @Data
@@ -24,6 +25,16 @@ public class Step {
         this.message = message;
     }
 
+    /**
+     * Deadline of the step, which is the end of its execution window.
+     *
+     * @param from Time to count the duration from if the step hasn't been started yet
+     * @return Start time plus the duration of the step
+     */
+    public Instant deadlineFrom(Instant from) {
+        return (startedAt != null ? startedAt : from).plus(Duration.ofMinutes(duration));
+    }
+
     /**
      * Mock the final response (for testing purposes only).
      *
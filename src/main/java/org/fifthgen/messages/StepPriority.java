@@ -0,0 +1,11 @@
+package org.fifthgen.messages;
+
+/**
+ * Priority classes a track (campaign) can be dispatched under. Lower ordinal is served first by the
+ * {@link StepScheduler}, steps within the same class are served earliest deadline first.
+ */
+public enum StepPriority {
+    CRITICAL,
+    NORMAL,
+    BULK
+}
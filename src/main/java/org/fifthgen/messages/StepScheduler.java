@@ -0,0 +1,329 @@
+package org.fifthgen.messages;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Shared dispatcher for the steps of all tracks. Steps are ordered by the priority class of their track first
+ * and by their deadline second (earliest deadline first), so time critical messages are not held back by a
+ * backlog of bulk messages. Each priority class has a bounded queue and an {@link OverflowPolicy} deciding
+ * what happens to steps that don't fit.
+ */
+public class StepScheduler {
+
+    // Longest a deferred step waits for a free slot before it's dropped
+    private static final Duration MAX_DEFER_TIME = Duration.ofSeconds(10);
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ThreadPoolExecutor executorService;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final Map<StepPriority, PriorityClass> classes = new EnumMap<>(StepPriority.class);
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean accepting = true;
+
+    public StepScheduler(int threads) {
+        // The executor runs the raw runnable on execute(), so the queue orders the dispatch tasks directly.
+        // The timer is kept alive till the last dispatched step is done so it can still schedule its follow ups.
+        this.executorService = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>()) {
+            @Override
+            protected void terminated() {
+                timer.shutdown();
+            }
+        };
+        // Start the workers upfront so even the first steps go through the ordered queue
+        this.executorService.prestartAllCoreThreads();
+
+        for (StepPriority priority : StepPriority.values()) {
+            classes.put(priority, new PriorityClass(priority));
+        }
+
+        configure(StepPriority.CRITICAL, 100, OverflowPolicy.DEFER);
+        configure(StepPriority.NORMAL, 500, OverflowPolicy.DEFER);
+        configure(StepPriority.BULK, 1000, OverflowPolicy.SHED);
+    }
+
+    /**
+     * Set the queue bound and overflow policy of a priority class. Classes using {@link OverflowPolicy#DEFER}
+     * hold up to the same number of steps again while they wait for a free slot.
+     *
+     * @param priority Priority class to configure
+     * @param capacity Maximum number of steps waiting for dispatch in this class
+     * @param policy   Action taken on steps submitted while the queue is full
+     */
+    public void configure(StepPriority priority, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+
+        PriorityClass priorityClass = classes.get(priority);
+
+        synchronized (priorityClass) {
+            priorityClass.capacity = capacity;
+            priorityClass.policy = policy;
+        }
+
+        // Fill any slots a raised capacity has freed up
+        drain(priorityClass);
+    }
+
+    public DispatchMetrics getMetrics(StepPriority priority) {
+        return classes.get(priority).metrics;
+    }
+
+    /**
+     * Queue a step for dispatch. The deadline of the step is its start time plus its duration, or the
+     * submission time plus its duration if the step hasn't been started yet.
+     *
+     * @param priority Priority class of the track the step belongs to
+     * @param step     Step being dispatched, used to work out the deadline
+     * @param task     Work to run once the step is dispatched
+     * @param onShed   Called if the step is dropped instead of being dispatched, may be null. This can be
+     *                 called from within this method, so it must not submit again.
+     * @return Whether the step was queued or deferred, false if it was shed
+     */
+    public boolean submit(StepPriority priority, Step step, Runnable task, Runnable onShed) {
+        Instant now = Instant.now();
+        DispatchTask dispatchTask = new DispatchTask(classes.get(priority), step.deadlineFrom(now),
+                sequence.incrementAndGet(), now, System.nanoTime(), task, onShed, true);
+        dispatchTask.priorityClass.metrics.recordSubmitted();
+
+        return admit(dispatchTask);
+    }
+
+    /**
+     * Queue the follow up of a step which has already been dispatched, such as handling the client response.
+     * Follow ups are ordered with the other steps by priority and deadline, but hold no slot of their class,
+     * can't be shed and are left out of the metrics. Once the scheduler is shut down the follow up is run on
+     * the calling thread instead.
+     *
+     * @param priority Priority class of the track the step belongs to
+     * @param step     Step the follow up belongs to, used to work out the deadline
+     * @param task     Work to run for the step
+     */
+    void resume(StepPriority priority, Step step, Runnable task) {
+        Instant now = Instant.now();
+        DispatchTask dispatchTask = new DispatchTask(classes.get(priority), step.deadlineFrom(now),
+                sequence.incrementAndGet(), now, System.nanoTime(), task, null, false);
+
+        try {
+            executorService.execute(dispatchTask);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Run a task after the given delay on the scheduler's timer. Only meant for lightweight checks such as
+     * polling for a client response, any real work should be handed back through {@link #resume}.
+     *
+     * @return Whether the task was scheduled, false once the scheduler has terminated
+     */
+    public boolean schedule(Runnable task, long delay, TimeUnit unit) {
+        try {
+            timer.schedule(task, delay, unit);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warning("Scheduler is terminated, dropping scheduled task");
+            return false;
+        }
+    }
+
+    /**
+     * Stop accepting steps. Steps already queued for dispatch still run, deferred steps and any steps
+     * submitted from here on are dropped through their shed callback.
+     */
+    public void shutdown() {
+        accepting = false;
+        executorService.shutdown();
+
+        for (PriorityClass priorityClass : classes.values()) {
+            List<DispatchTask> dropped;
+
+            synchronized (priorityClass) {
+                dropped = new ArrayList<>(priorityClass.deferred);
+                priorityClass.deferred.clear();
+            }
+
+            dropped.forEach(dispatchTask -> reject(dispatchTask, "Scheduler is shut down"));
+        }
+    }
+
+    private boolean admit(DispatchTask dispatchTask) {
+        PriorityClass priorityClass = dispatchTask.priorityClass;
+        boolean admitted = false;
+
+        synchronized (priorityClass) {
+            // Only take a free slot if no deferred steps are waiting for it, so they're not overtaken
+            if (accepting && priorityClass.deferred.isEmpty() && priorityClass.queued < priorityClass.capacity) {
+                priorityClass.queued++;
+                admitted = true;
+            } else if (accepting && priorityClass.policy == OverflowPolicy.DEFER
+                    && priorityClass.deferred.size() < priorityClass.capacity) {
+                priorityClass.deferred.add(dispatchTask);
+                priorityClass.metrics.recordDeferred();
+
+                return true;
+            }
+        }
+
+        if (admitted) {
+            return dispatch(dispatchTask);
+        }
+
+        reject(dispatchTask, accepting ? "Queue full" : "Scheduler is shut down");
+
+        return false;
+    }
+
+    /**
+     * Hand an admitted step to the executor. The step must already hold a slot of its priority class.
+     */
+    private boolean dispatch(DispatchTask dispatchTask) {
+        try {
+            executorService.execute(dispatchTask);
+            return true;
+        } catch (RejectedExecutionException e) {
+            synchronized (dispatchTask.priorityClass) {
+                dispatchTask.priorityClass.queued--;
+            }
+
+            reject(dispatchTask, "Scheduler is shut down");
+
+            return false;
+        }
+    }
+
+    private void reject(DispatchTask dispatchTask, String reason) {
+        dispatchTask.priorityClass.metrics.recordShed();
+        log.warning(reason + ", shedding " + dispatchTask.priorityClass.priority + " step");
+        dispatchTask.shed();
+    }
+
+    /**
+     * Free the slot of a step which has started running and pass it on to the deferred steps of its class.
+     */
+    private void release(PriorityClass priorityClass) {
+        synchronized (priorityClass) {
+            priorityClass.queued--;
+        }
+
+        drain(priorityClass);
+    }
+
+    /**
+     * Move deferred steps into the free slots of their class, most urgent first, dropping deferred steps
+     * which have expired on the way.
+     */
+    private void drain(PriorityClass priorityClass) {
+        List<DispatchTask> expired = new ArrayList<>();
+        List<DispatchTask> ready = new ArrayList<>();
+        Instant now = Instant.now();
+
+        synchronized (priorityClass) {
+            while (priorityClass.queued < priorityClass.capacity && !priorityClass.deferred.isEmpty()) {
+                DispatchTask deferred = priorityClass.deferred.poll();
+
+                if (deferred.isExpired(now)) {
+                    expired.add(deferred);
+                } else {
+                    priorityClass.queued++;
+                    ready.add(deferred);
+                }
+            }
+        }
+
+        expired.forEach(DispatchTask::expire);
+        ready.forEach(this::dispatch);
+    }
+
+    private static class PriorityClass {
+
+        private final StepPriority priority;
+        private final DispatchMetrics metrics;
+        private final Queue<DispatchTask> deferred = new PriorityQueue<>();
+        private int capacity;
+        private OverflowPolicy policy;
+        // Steps admitted to the executor which haven't started running yet
+        private int queued;
+
+        private PriorityClass(StepPriority priority) {
+            this.priority = priority;
+            this.metrics = new DispatchMetrics(priority);
+        }
+    }
+
+    private class DispatchTask implements Runnable, Comparable<DispatchTask> {
+
+        private final PriorityClass priorityClass;
+        private final Instant deadline;
+        private final long seq;
+        private final Instant submittedAt;
+        private final long enqueuedAt;
+        private final Runnable task;
+        private final Runnable onShed;
+        // Whether the task holds a slot of its class and counts towards its metrics
+        private final boolean admitted;
+
+        private DispatchTask(PriorityClass priorityClass, Instant deadline, long seq, Instant submittedAt,
+                             long enqueuedAt, Runnable task, Runnable onShed, boolean admitted) {
+            this.priorityClass = priorityClass;
+            this.deadline = deadline;
+            this.seq = seq;
+            this.submittedAt = submittedAt;
+            this.enqueuedAt = enqueuedAt;
+            this.task = task;
+            this.onShed = onShed;
+            this.admitted = admitted;
+        }
+
+        /**
+         * A deferred step expires once it has waited for the maximum defer time, or once its deadline has
+         * passed if it still had time left when it was submitted. Steps which were already due on submission
+         * get the full defer time.
+         */
+        private boolean isExpired(Instant now) {
+            return now.isAfter(submittedAt.plus(MAX_DEFER_TIME))
+                    || (deadline.isAfter(submittedAt) && now.isAfter(deadline));
+        }
+
+        private void expire() {
+            priorityClass.metrics.recordExpired();
+            log.warning("Deferred " + priorityClass.priority + " step expired before dispatch");
+            shed();
+        }
+
+        private void shed() {
+            if (onShed != null) {
+                onShed.run();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (admitted) {
+                release(priorityClass);
+                priorityClass.metrics.recordDispatched(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt));
+            }
+
+            task.run();
+        }
+
+        @Override
+        public int compareTo(DispatchTask other) {
+            int result = priorityClass.priority.compareTo(other.priorityClass.priority);
+
+            if (result == 0) {
+                result = deadline.compareTo(other.deadline);
+            }
+
+            // Keep FIFO order between steps with the same deadline
+            return result != 0 ? result : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -14,19 +14,23 @@ public class Track implements Runnable, ClientCallback {
 
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final List<Step> steps = new ArrayList<>();
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    private final StepScheduler scheduler;
     private final int id;
     private int clientRef;
     private final ServerApplication server;
     private int nodeDuration;
     private boolean isDone;
-    private Response trackResponse;
+    private boolean isAborted;
+    private boolean completionNotified;
+    private volatile Response trackResponse;
     private Response prevTrackResponse;
     private int nodeCounter = 0;
     private Track next;
     private TrackResponseValidator validator;
     private TrackResponseCallback responseCallback;
     private boolean dependsOnPrevTrack;
+    private StepPriority priority = StepPriority.NORMAL;
+    private TrackCompletionListener completionListener;
 
     public int getId() {
         return id;
@@ -44,6 +48,10 @@ public class Track implements Runnable, ClientCallback {
         return isDone;
     }
 
+    public boolean isAborted() {
+        return isAborted;
+    }
+
     public Response getTrackResponse() {
         return trackResponse;
     }
@@ -84,9 +92,26 @@ public class Track implements Runnable, ClientCallback {
         this.dependsOnPrevTrack = dependsOnPrevTrack;
     }
 
-    public Track(int id, ServerApplication server) {
+    public StepPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(StepPriority priority) {
+        this.priority = priority;
+    }
+
+    public TrackCompletionListener getCompletionListener() {
+        return completionListener;
+    }
+
+    public void setCompletionListener(TrackCompletionListener completionListener) {
+        this.completionListener = completionListener;
+    }
+
+    public Track(int id, ServerApplication server, StepScheduler scheduler) {
         this.id = id;
         this.server = server;
+        this.scheduler = scheduler;
     }
 
     /**
@@ -98,7 +123,13 @@ public class Track implements Runnable, ClientCallback {
         if (dependsOnPrevTrack) {
             if (this.responseCallback instanceof TrackResponseCallBackWithOnStart) {
                 TrackResponseCallBackWithOnStart callback = (TrackResponseCallBackWithOnStart) this.responseCallback;
-                callback.onStart(prevTrackResponse, steps);
+
+                try {
+                    callback.onStart(prevTrackResponse, steps);
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
             }
         }
 
@@ -111,7 +142,12 @@ public class Track implements Runnable, ClientCallback {
             steps.remove(step);
             nodeDuration = step.getDuration();
 
-            executorService.execute(() -> execute(step));
+            scheduler.submit(priority, step, () -> execute(step), this::abort);
+        } else {
+            log.info("Track: " + id + " ended without a response" + System.lineSeparator());
+
+            isDone = true;
+            notifyComplete();
         }
     }
 
@@ -128,64 +164,127 @@ public class Track implements Runnable, ClientCallback {
     }
 
     /**
-     * Shutdown the executor and cancel all the non executing tasks.
+     * Mark the track as complete and hand its response over to the next track.
      */
     public void shutdown() {
         log.info("Track: " + id + " execution complete" + System.lineSeparator());
 
-        executorService.shutdown();
+        isDone = true;
 
-        // Start the next track if available
+        // Start the next track if available, which takes over reporting the end of the chain
         if (this.next != null) {
+            completionNotified = true;
             this.next.setPrevTrackResponse(trackResponse);
             this.next.run();
+        } else {
+            notifyComplete();
         }
     }
 
     /**
-     * Execute the instructions in the node. Needs to be run on a separate thread.
+     * End the track when one of its steps couldn't be dispatched. The remaining steps and the next tracks
+     * are dropped, as they can't run without the response of this track.
+     */
+    private void abort() {
+        log.warning("Track: " + id + " aborted, step dropped by the scheduler" + System.lineSeparator());
+
+        isDone = true;
+        isAborted = true;
+        notifyComplete();
+    }
+
+    /**
+     * End the track when one of its tasks has thrown, so the chain is still reported as complete.
+     */
+    private void fail(RuntimeException e) {
+        log.severe("Track: " + id + " failed: " + e + System.lineSeparator());
+
+        isDone = true;
+        isAborted = true;
+        notifyComplete();
+    }
+
+    private void notifyComplete() {
+        // A failing listener or callback can end the track a second time, report it only once
+        if (completionNotified) {
+            return;
+        }
+
+        completionNotified = true;
+
+        if (this.completionListener != null) {
+            this.completionListener.onComplete(this);
+        }
+    }
+
+    /**
+     * Execute the instructions in the node. Runs on a dispatch thread of the {@link StepScheduler}.
      *
      * @param step {@link Step} object to be executed
      */
     private void execute(Step step) {
         step.setStartedAt(Instant.now());
 
-        for (ServerClient client : server.getClients()) {
-            if (client.getId() == this.clientRef) {
-                // Register instance with the client for callback
-                client.setCallback(this);
-                log.info("Sending message to client: " + client.getName());
-                client.sendMessage(step.getMessage());
+        try {
+            for (ServerClient client : server.getClients()) {
+                if (client.getId() == this.clientRef) {
+                    // Register instance with the client for callback
+                    client.setCallback(this);
+                    log.info("Sending message to client: " + client.getName());
+                    client.sendMessage(step.getMessage());
 
-                break;
+                    break;
+                }
             }
+
+            awaitResponse(step);
+        } catch (RuntimeException e) {
+            fail(e);
         }
+    }
 
+    /**
+     * Check for the client response without holding a dispatch thread. Re-checks every 5 seconds on the
+     * scheduler's timer till a response is received or the node duration expires, then hands the rest of
+     * the work back to the scheduler, where it's ordered by the deadline of the step.
+     *
+     * @param step {@link Step} object waiting for the response
+     */
+    private void awaitResponse(Step step) {
         // Time elapsed in seconds, node duration is in minutes
         long timeElapsed = Duration.between(step.getStartedAt(), Instant.now()).toSeconds();
 
-        // Block the thread till client response is received or time expires;
-        while (trackResponse == null && (timeElapsed / 60) < nodeDuration) {
-            // Recalculated time elapsed every 5 seconds
-            try {
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                System.out.println("Thread interrupted: " + e.getLocalizedMessage());
+        if (trackResponse == null && (timeElapsed / 60) < nodeDuration) {
+            if (!scheduler.schedule(() -> awaitResponse(step), 5, TimeUnit.SECONDS)) {
+                abort();
             }
 
-            timeElapsed = Duration.between(step.getStartedAt(), Instant.now()).toSeconds();
+            return;
         }
 
-        // Reset response and duration
-        if (trackResponse == null) {
-            nodeDuration = 0;
-            executeNextNode();
-        } else {
-            if (this.responseCallback != null) {
-                this.responseCallback.onSuccess(this.trackResponse);
-            }
+        // The message has been sent already, so the follow up must not be shed
+        scheduler.resume(priority, step, this::completeNode);
+    }
 
-            shutdown();
+    /**
+     * Move on once the current node is over, either to the next node or, if the client has responded,
+     * to the next track.
+     */
+    private void completeNode() {
+        try {
+            // Reset response and duration
+            if (trackResponse == null) {
+                nodeDuration = 0;
+                executeNextNode();
+            } else {
+                if (this.responseCallback != null) {
+                    this.responseCallback.onSuccess(this.trackResponse);
+                }
+
+                shutdown();
+            }
+        } catch (RuntimeException e) {
+            fail(e);
         }
     }
 
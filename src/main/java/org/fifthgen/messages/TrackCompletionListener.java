@@ -0,0 +1,11 @@
+package org.fifthgen.messages;
+
+public interface TrackCompletionListener {
+
+    /**
+     * Called when a track ends without handing over to a next track, which is the end of its chain.
+     *
+     * @param track Track which ended the chain
+     */
+    void onComplete(Track track);
+}